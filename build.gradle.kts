@@ -10,6 +10,14 @@ repositories {
     mavenCentral()
 }
 
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations["benchmarkImplementation"].extendsFrom(configurations.implementation.get())
+configurations["benchmarkRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     implementation("com.google.guava:guava:29.0-jre")
     implementation("io.vavr:vavr:0.10.3")
@@ -36,3 +44,28 @@ application {
     applicationDefaultJvmArgs = listOf("--enable-preview")
     mainClass.set("andrepnh.dwarven.villas.Main")
 }
+
+val benchmarkBaseline = file("benchmark-baseline.json")
+
+fun JavaExec.runBenchmark(vararg extraArgs: String) {
+    group = "verification"
+    classpath = benchmark.runtimeClasspath
+    mainClass.set("andrepnh.dwarven.villas.Benchmark")
+    jvmArgs = listOf("--enable-preview", "-Xms1g", "-Xmx1g")
+    args = listOf(
+        "--output", "$buildDir/benchmark/results.json",
+        "--baseline", benchmarkBaseline.path,
+        "--generations", project.findProperty("benchmarkGenerations")?.toString() ?: "50",
+        "--threshold", project.findProperty("benchmarkThreshold")?.toString() ?: "0.25"
+    ) + extraArgs
+}
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs the GA over the scenario corpus and fails on regressions against the baseline"
+    runBenchmark()
+}
+
+tasks.register<JavaExec>("benchmarkBaseline") {
+    description = "Runs the GA over the scenario corpus and records the results as the new baseline"
+    runBenchmark("--update")
+}
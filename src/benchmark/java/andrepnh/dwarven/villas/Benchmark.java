@@ -0,0 +1,324 @@
+package andrepnh.dwarven.villas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the whole evolve loop over the scenario corpus and compares throughput, peak heap and GC
+ * time against a JSON baseline, exiting with 1 when anything regresses past the threshold. A
+ * separate scenario measures how much sooner a run warm started from an {@link EliteArchive}
+ * reaches what a cold run gets to.
+ *
+ * <p>Arguments: {@code --output <file> --baseline <file> [--generations <n>] [--threshold <ratio>]
+ * [--update]}. With {@code --update} the results become the new baseline instead.
+ */
+public class Benchmark {
+  private static final int WARMUP_GENERATIONS = 5;
+  private static final int PAST_RUNS = 3;
+  private static final int ARCHIVE_CAPACITY = 64;
+  private static final Pattern SCENARIO = Pattern.compile("\"([\\w-]+)\"\\s*:\\s*\\{([^{}]*)}");
+  private static final Pattern FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*([-+.\\dEe]+)");
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = parse(args);
+    var output = Path.of(required(options, "output"));
+    var baseline = Path.of(required(options, "baseline"));
+    int generations = Integer.parseInt(options.getOrDefault("generations", "50"));
+    double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.25"));
+    checkArgument(generations > 0, "Generations <= 0: %s", generations);
+    checkArgument(threshold >= 0, "Negative threshold: %s", threshold);
+
+    Map<String, Map<Metric, Double>> results = new LinkedHashMap<>();
+    for (var scenario : Scenario.corpus()) {
+      var result = run(scenario, generations);
+      results.put(scenario.name(), result);
+      System.out.printf(Locale.ROOT, "%-12s %s%n", scenario.name(), describe(result));
+    }
+    var familiar = Scenario.familiar();
+    var warmStart = warmStart(familiar, generations);
+    results.put(familiar.name(), warmStart);
+    System.out.printf(Locale.ROOT, "%-12s %s%n", familiar.name(), describe(warmStart));
+    var json = toJson(generations, results);
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    Files.writeString(output, json);
+
+    if (options.containsKey("update")) {
+      Files.createDirectories(baseline.toAbsolutePath().getParent());
+      Files.writeString(baseline, json);
+      System.out.println("Baseline written to " + baseline);
+      return;
+    }
+    if (!Files.exists(baseline)) {
+      System.err.println("No baseline at " + baseline + "; rerun with --update to create one");
+      System.exit(1);
+    }
+    List<String> regressions = compare(Files.readString(baseline), generations, results,
+        threshold);
+    if (!regressions.isEmpty()) {
+      System.err.printf("Regressed by more than %.0f%% against %s:%n", threshold * 100, baseline);
+      regressions.forEach(regression -> System.err.println("  " + regression));
+      System.exit(1);
+    }
+    System.out.printf("No regressions past %.0f%% against %s%n", threshold * 100, baseline);
+  }
+
+  private static Map<Metric, Double> run(Scenario scenario, int generations) {
+    ToDoubleFunction<Grid> fitness = new Bedrooms();
+    var settings = Evolution.Settings.defaults(scenario.populationSize());
+    new Evolution(scenario.map(), fitness, settings, new Random(Scenario.CORPUS_SEED))
+        .evolve(WARMUP_GENERATIONS);
+
+    System.gc();
+    List<MemoryPoolMXBean> heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .collect(Collectors.toList());
+    heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+    long gcStart = gcMillis();
+
+    var evolution = new Evolution(
+        scenario.map(), new Bedrooms(), settings, new Random(Scenario.CORPUS_SEED));
+    long evaluationsStart = evolution.evaluations();
+    long start = System.nanoTime();
+    evolution.evolve(generations);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    // Pools peak at different moments, so their sum is an upper bound on the real peak
+    long peakHeap = heap.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    Map<Metric, Double> result = new LinkedHashMap<>();
+    result.put(Metric.GENERATIONS_PER_SECOND, generations / seconds);
+    result.put(Metric.EVALUATIONS_PER_SECOND,
+        (evolution.evaluations() - evaluationsStart) / seconds);
+    result.put(Metric.PEAK_HEAP_BYTES, (double) peakHeap);
+    result.put(Metric.GC_MILLIS, (double) (gcMillis() - gcStart));
+    result.put(Metric.BEST_FITNESS, evolution.bestFitness());
+    return result;
+  }
+
+  // Past runs with other seeds and the same generations fill an archive, then a cold run sets the
+  // target: its best after all generations. Cold and warm runs are timed from creating the
+  // population, the warm one including the archive lookup
+  private static Map<Metric, Double> warmStart(Scenario scenario, int generations)
+      throws IOException {
+    var map = scenario.map();
+    var settings = Evolution.Settings.defaults(scenario.populationSize());
+    long signature = new Bedrooms().signature();
+    var directory = Files.createTempDirectory("elite-archive");
+    var file = directory.resolve("elites.bin");
+    directory.toFile().deleteOnExit();
+    file.toFile().deleteOnExit();
+    // A fixed clock, so equally fit layouts are ordered the same way on every run
+    var clock = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+    var archive = EliteArchive.open(file, ARCHIVE_CAPACITY, Duration.ofDays(1), clock);
+    for (int run = 1; run <= PAST_RUNS; run++) {
+      var past = new Evolution(map, new Bedrooms(), settings,
+          new Random(Scenario.CORPUS_SEED + run));
+      past.evolve(generations);
+      archive.addElites(signature, past);
+    }
+    archive.save();
+
+    long coldStart = System.nanoTime();
+    var cold = new Evolution(map, new Bedrooms(), settings,
+        new Random(Scenario.CORPUS_SEED));
+    double[] best = new double[generations + 1];
+    long[] elapsed = new long[generations + 1];
+    best[0] = cold.bestFitness();
+    elapsed[0] = System.nanoTime() - coldStart;
+    for (int generation = 1; generation <= generations; generation++) {
+      cold.step();
+      best[generation] = cold.bestFitness();
+      elapsed[generation] = System.nanoTime() - coldStart;
+    }
+    double target = best[generations];
+    int coldGenerations = 0;
+    while (best[coldGenerations] < target) {
+      coldGenerations++;
+    }
+
+    // Reopened, so the lookup reads from the file like a new process would
+    long warmStart = System.nanoTime();
+    var seeds = EliteArchive.open(file, ARCHIVE_CAPACITY, Duration.ofDays(1), clock)
+        .seeds(map, signature, settings);
+    var warm = new Evolution(map, new Bedrooms(), settings,
+        new Random(Scenario.CORPUS_SEED), seeds);
+    // Twice the cold budget, so a warm start that is merely slower still shows up as a number
+    while (warm.bestFitness() < target && warm.generation() < generations * 2) {
+      warm.step();
+    }
+    double warmSeconds = (System.nanoTime() - warmStart) / 1e9;
+
+    Map<Metric, Double> result = new LinkedHashMap<>();
+    result.put(Metric.TARGET_FITNESS, target);
+    result.put(Metric.COLD_GENERATIONS_TO_TARGET, (double) coldGenerations);
+    result.put(Metric.COLD_SECONDS_TO_TARGET, elapsed[coldGenerations] / 1e9);
+    result.put(Metric.WARM_GENERATIONS_TO_TARGET, (double) warm.generation());
+    result.put(Metric.WARM_SECONDS_TO_TARGET, warmSeconds);
+    result.put(Metric.WARM_TO_COLD_TIME, warmSeconds / (elapsed[coldGenerations] / 1e9));
+    result.put(Metric.WARM_SEEDS, (double) seeds.size());
+    return result;
+  }
+
+  private static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+        .filter(time -> time > 0)
+        .sum();
+  }
+
+  private static List<String> compare(String baselineJson, int generations,
+      Map<String, Map<Metric, Double>> results, double threshold) {
+    var baseline = fromJson(baselineJson);
+    List<String> regressions = new ArrayList<>();
+    double baselineGenerations = baseline.getOrDefault("", Map.of())
+        .getOrDefault("generations", Double.NaN);
+    if (baselineGenerations != generations) {
+      regressions.add(String.format("baseline ran %.0f generations, not %d; regenerate it",
+          baselineGenerations, generations));
+      return regressions;
+    }
+    results.forEach((scenario, metrics) -> {
+      var expected = baseline.get(scenario);
+      if (expected == null) {
+        regressions.add(scenario + ": missing from the baseline; regenerate it");
+        return;
+      }
+      metrics.forEach((metric, actual) -> {
+        Double reference = expected.get(metric.key);
+        if (reference != null && metric.regressed(reference, actual, threshold)) {
+          regressions.add(String.format(Locale.ROOT, "%s: %s went from %.2f to %.2f",
+              scenario, metric.key, reference, actual));
+        }
+      });
+    });
+    return regressions;
+  }
+
+  private static String toJson(int generations, Map<String, Map<Metric, Double>> results) {
+    var scenarios = results.entrySet().stream()
+        .map(entry -> String.format("    \"%s\": {%n%s%n    }", entry.getKey(),
+            entry.getValue().entrySet().stream()
+                .map(metric -> String.format(Locale.ROOT, "      \"%s\": %s",
+                    metric.getKey().key, metric.getKey().format(metric.getValue())))
+                .collect(Collectors.joining("," + System.lineSeparator()))))
+        .collect(Collectors.joining("," + System.lineSeparator()));
+    return String.format("{%n  \"generations\": %d,%n  \"scenarios\": {%n%s%n  }%n}%n",
+        generations, scenarios);
+  }
+
+  // Just enough JSON for the files toJson writes. Top level fields go under the "" scenario
+  private static Map<String, Map<String, Double>> fromJson(String json) {
+    Map<String, Map<String, Double>> scenarios = new LinkedHashMap<>();
+    var scenarioMatcher = SCENARIO.matcher(json);
+    while (scenarioMatcher.find()) {
+      scenarios.put(scenarioMatcher.group(1), fields(scenarioMatcher.group(2)));
+    }
+    scenarios.put("", fields(SCENARIO.matcher(json).replaceAll("")));
+    return scenarios;
+  }
+
+  private static Map<String, Double> fields(String json) {
+    Map<String, Double> fields = new LinkedHashMap<>();
+    var matcher = FIELD.matcher(json);
+    while (matcher.find()) {
+      fields.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+    }
+    return fields;
+  }
+
+  private static String describe(Map<Metric, Double> result) {
+    return result.entrySet().stream()
+        .map(entry -> entry.getKey().key + "=" + entry.getKey().format(entry.getValue()))
+        .collect(Collectors.joining(" "));
+  }
+
+  private static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      checkArgument(args[i].startsWith("--"), "Unexpected argument: %s", args[i]);
+      var name = args[i].substring(2);
+      if (name.equals("update")) {
+        options.put(name, "true");
+      } else {
+        checkArgument(i + 1 < args.length, "Missing value for %s", args[i]);
+        options.put(name, args[++i]);
+      }
+    }
+    return options;
+  }
+
+  private static String required(Map<String, String> options, String name) {
+    var value = options.get(name);
+    checkArgument(value != null, "Missing required --%s", name);
+    return value;
+  }
+
+  private enum Metric {
+    GENERATIONS_PER_SECOND("generationsPerSecond", Direction.HIGHER_IS_BETTER, 0),
+    EVALUATIONS_PER_SECOND("evaluationsPerSecond", Direction.HIGHER_IS_BETTER, 0),
+    PEAK_HEAP_BYTES("peakHeapBytes", Direction.LOWER_IS_BETTER, 16 * 1024 * 1024),
+    // A handful of pauses more or less is noise, hence the slack
+    GC_MILLIS("gcMillis", Direction.LOWER_IS_BETTER, 50),
+    // Runs are seeded, so this only changes along with the algorithm; recorded, never gated
+    BEST_FITNESS("bestFitness", Direction.UNGATED, 0),
+    // Warm start scenario. The cold run defines the target, so only the warm run is gated, and
+    // its time only relative to the cold run's, which machine speed affects just as much
+    TARGET_FITNESS("targetFitness", Direction.UNGATED, 0),
+    COLD_GENERATIONS_TO_TARGET("coldGenerationsToTarget", Direction.UNGATED, 0),
+    COLD_SECONDS_TO_TARGET("coldSecondsToTarget", Direction.UNGATED, 0),
+    WARM_GENERATIONS_TO_TARGET("warmGenerationsToTarget", Direction.LOWER_IS_BETTER, 1),
+    WARM_SECONDS_TO_TARGET("warmSecondsToTarget", Direction.UNGATED, 0),
+    // The warm run can take a few milliseconds, where scheduling noise exceeds any ratio
+    WARM_TO_COLD_TIME("warmToColdTime", Direction.LOWER_IS_BETTER, 0.05),
+    WARM_SEEDS("warmSeeds", Direction.UNGATED, 0);
+
+    private final String key;
+    private final Direction direction;
+    private final double slack;
+
+    Metric(String key, Direction direction, double slack) {
+      this.key = key;
+      this.direction = direction;
+      this.slack = slack;
+    }
+
+    boolean regressed(double baseline, double actual, double threshold) {
+      return switch (direction) {
+        case HIGHER_IS_BETTER -> actual < baseline * (1 - threshold) - slack;
+        case LOWER_IS_BETTER -> actual > baseline * (1 + threshold) + slack;
+        case UNGATED -> false;
+      };
+    }
+
+    String format(double value) {
+      return this == PEAK_HEAP_BYTES || this == GC_MILLIS
+          || this == COLD_GENERATIONS_TO_TARGET || this == WARM_GENERATIONS_TO_TARGET
+          || this == WARM_SEEDS
+          ? String.valueOf((long) value)
+          : String.format(Locale.ROOT, "%.4f", value);
+    }
+  }
+
+  private enum Direction {
+    HIGHER_IS_BETTER, LOWER_IS_BETTER, UNGATED
+  }
+}
@@ -0,0 +1,56 @@
+package andrepnh.dwarven.villas;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+
+/**
+ * A map to evolve bedrooms on. The corpus is generated from a fixed seed, so every run benchmarks
+ * the very same maps.
+ */
+public record Scenario(String name, Grid map, int populationSize) {
+  public static final long CORPUS_SEED = 0x5eed_d00dL;
+
+  public Scenario {
+    requireNonNull(name);
+    requireNonNull(map);
+  }
+
+  public static ImmutableList<Scenario> corpus() {
+    return corpus(CORPUS_SEED);
+  }
+
+  public static ImmutableList<Scenario> corpus(long seed) {
+    var rng = new Random(seed);
+    return ImmutableList.of(
+        new Scenario("small-rooms", scatter(16, 16, 0, 0.02, rng), 200),
+        new Scenario("large-open", scatter(96, 96, 0, 0.002, rng), 100),
+        new Scenario("stair-dense", scatter(40, 40, 0.15, 0.01, rng), 150),
+        new Scenario("door-dense", scatter(40, 40, 0, 0.15, rng), 150));
+  }
+
+  /**
+   * A map seen before: past runs on it leave their elites in an {@link EliteArchive} that a new
+   * run can warm start from. Kept out of the corpus since it is measured differently.
+   */
+  public static Scenario familiar() {
+    return new Scenario("familiar-map", scatter(40, 40, 0.02, 0.02, new Random(~CORPUS_SEED)),
+        150);
+  }
+
+  private static Grid scatter(int width, int height, double stairs, double doors, Random rng) {
+    var grid = new Grid(width, height);
+    for (int i = 0; i < grid.bounds().rows(); i++) {
+      for (int j = 0; j < grid.bounds().columns(); j++) {
+        double roll = rng.nextDouble();
+        if (roll < stairs) {
+          grid.place(Tile.STAIR, i, j);
+        } else if (roll < stairs + doors) {
+          grid.place(Tile.DOOR, i, j);
+        }
+      }
+    }
+    return grid;
+  }
+}
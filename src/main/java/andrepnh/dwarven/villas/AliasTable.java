@@ -0,0 +1,89 @@
+package andrepnh.dwarven.villas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Random;
+
+/**
+ * Roulette wheel selection through Vose's alias method: O(n) to build, O(1) per spin. Tables are
+ * sized once and rebuilt in place every generation.
+ */
+public class AliasTable {
+  private final double[] probability;
+  private final int[] alias;
+  private final int[] worklist;
+  private int size;
+
+  public AliasTable(int capacity) {
+    checkArgument(capacity > 0, "Capacity <= 0: %s", capacity);
+    this.probability = new double[capacity];
+    this.alias = new int[capacity];
+    this.worklist = new int[capacity];
+  }
+
+  public void reset(double[] weights) {
+    reset(weights, weights.length);
+  }
+
+  /**
+   * Rebuilds the table from the first {@code n} weights only, so {@code weights} can be a buffer
+   * sized for the largest population, like the one {@link Selection#rankWeights} fills.
+   */
+  public void reset(double[] weights, int n) {
+    checkArgument(0 < n && n <= probability.length,
+        "Expected between 1 and %s weights; got %s", probability.length, n);
+    checkArgument(n <= weights.length,
+        "Weight buffer is smaller than the population: %s < %s", weights.length, n);
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      checkArgument(weights[i] >= 0 && Double.isFinite(weights[i]),
+          "Weight at %s is negative or not finite", i);
+      sum += weights[i];
+    }
+    checkArgument(sum > 0 && Double.isFinite(sum), "Weights must add up to a positive number");
+
+    // Small columns are stacked from the start of the worklist, large ones from the end
+    double scale = n / sum;
+    int small = 0, large = n;
+    for (int i = 0; i < n; i++) {
+      probability[i] = weights[i] * scale;
+      alias[i] = i;
+      if (probability[i] < 1) {
+        worklist[small++] = i;
+      } else {
+        worklist[--large] = i;
+      }
+    }
+    while (small > 0 && large < n) {
+      int less = worklist[--small];
+      int more = worklist[large++];
+      alias[less] = more;
+      probability[more] = (probability[more] + probability[less]) - 1;
+      if (probability[more] < 1) {
+        worklist[small++] = more;
+      } else {
+        worklist[--large] = more;
+      }
+    }
+    // Whatever is left is 1 give or take rounding errors
+    while (large < n) {
+      probability[worklist[large++]] = 1;
+    }
+    while (small > 0) {
+      probability[worklist[--small]] = 1;
+    }
+    size = n;
+  }
+
+  public int sample(Random rng) {
+    if (size == 0) {
+      throw new IllegalStateException("Cannot sample before the table is reset with weights");
+    }
+    int column = rng.nextInt(size);
+    return rng.nextDouble() < probability[column] ? column : alias[column];
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,322 @@
+package andrepnh.dwarven.villas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableList;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Elite layouts from past runs, kept so new runs on familiar maps can start from them instead of
+ * from scratch. Entries are keyed by bounds and a constraint signature (see
+ * {@link Bedrooms#signature()}); each key keeps its {@code capacity} fittest layouts and anything
+ * older than {@code maxAge} is dropped. Lookups go straight to the key of the map at hand, and only
+ * visit other bounds when that key runs out of layouts.
+ *
+ * <p>The file is a header followed by one record per layout, tiles packed four to a byte. It is
+ * memory mapped on open, so layouts are only decoded when a lookup asks for them.
+ */
+public class EliteArchive {
+  private static final int MAGIC = 0x44564541; // DVEA
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = Integer.BYTES * 3;
+  private static final int ENTRY_HEADER_BYTES = Long.BYTES * 2 + Double.BYTES + Integer.BYTES * 2;
+  private static final Tile[] TILES = Tile.values();
+  private static final Comparator<Entry> FITTEST_FIRST = Comparator
+      .comparingDouble(Entry::fitness).reversed()
+      .thenComparing(Comparator.comparingLong(Entry::createdAt).reversed());
+
+  static {
+    checkState(TILES.length <= 4, "Tiles no longer fit in 2 bits: %s", TILES.length);
+  }
+
+  private final Path file;
+  private final int capacity;
+  private final Duration maxAge;
+  private final Clock clock;
+  // Fittest first within each key
+  private final Map<Key, List<Entry>> entries = new HashMap<>();
+
+  private EliteArchive(Path file, int capacity, Duration maxAge, Clock clock,
+      List<Entry> entries) {
+    this.file = file;
+    this.capacity = capacity;
+    this.maxAge = maxAge;
+    this.clock = clock;
+    entries.forEach(entry ->
+        this.entries.computeIfAbsent(entry.key(), key -> new ArrayList<>()).add(entry));
+  }
+
+  public static EliteArchive open(Path file, int capacity, Duration maxAge) throws IOException {
+    return open(file, capacity, maxAge, Clock.systemUTC());
+  }
+
+  public static EliteArchive open(Path file, int capacity, Duration maxAge, Clock clock)
+      throws IOException {
+    requireNonNull(file);
+    checkArgument(capacity > 0, "Capacity <= 0: %s", capacity);
+    checkArgument(!maxAge.isNegative() && !maxAge.isZero(), "Max age must be positive: %s",
+        maxAge);
+    var archive = new EliteArchive(file, capacity, maxAge, requireNonNull(clock),
+        Files.exists(file) ? read(file) : new ArrayList<>());
+    archive.evict();
+    return archive;
+  }
+
+  public void add(long signature, Grid grid, double fitness) {
+    checkArgument(!Double.isNaN(fitness), "Fitness is NaN");
+    var bounds = grid.bounds();
+    var tiles = pack(grid);
+    var entry = new Entry(signature, clock.millis(), fitness,
+        bounds.width(), bounds.height(), tiles);
+    var sameKey = entries.computeIfAbsent(entry.key(), key -> new ArrayList<>());
+    // Seeing the same layout again only refreshes it
+    sameKey.removeIf(existing -> existing.tiles().equals(tiles));
+    sameKey.add(entry);
+    evict();
+  }
+
+  /**
+   * Layouts with the given signature, closest to {@code map} first. Layouts over the map's bounds
+   * come first, then those over the closest bounds; within the same bounds, those whose doors and
+   * stairs line up with the map's come first, then the fittest.
+   */
+  public ImmutableList<Grid> nearest(Grid map, long signature, int limit) {
+    checkArgument(limit >= 0, "Negative limit: %s", limit);
+    var bounds = map.bounds();
+    var exact = new Key(signature, bounds.width(), bounds.height());
+    List<Key> keys = entries.keySet().stream()
+        .filter(key -> key.signature() == signature)
+        .sorted(Comparator.comparingInt(key -> key.distance(exact)))
+        .collect(Collectors.toList());
+    var nearest = ImmutableList.<Grid>builder();
+    int found = 0;
+    for (var key : keys) {
+      if (found == limit) {
+        break;
+      }
+      var closest = entries.get(key).stream()
+          .map(entry -> new Candidate(entry, distance(entry, map)))
+          .sorted(Comparator.comparingInt(Candidate::distance)
+              .thenComparing(Candidate::entry, FITTEST_FIRST))
+          .limit(limit - found)
+          .collect(Collectors.toList());
+      closest.forEach(candidate -> nearest.add(unpack(candidate.entry())));
+      found += closest.size();
+    }
+    return nearest.build();
+  }
+
+  /**
+   * Seeds for an {@link Evolution} over {@code map}: the nearest layouts, up to half the
+   * population so random layouts still bring in some diversity.
+   */
+  public ImmutableList<Grid> seeds(Grid map, long signature, Evolution.Settings settings) {
+    return nearest(map, signature, settings.populationSize() / 2);
+  }
+
+  /**
+   * Keeps the current elites of {@code evolution}, typically once it is done.
+   */
+  public void addElites(long signature, Evolution evolution) {
+    evolution.forEachElite((grid, fitness) -> add(signature, grid, fitness));
+  }
+
+  public int size() {
+    return entries.values().stream().mapToInt(List::size).sum();
+  }
+
+  /**
+   * Replaces the file with the current entries. Layouts still read from the old file are copied
+   * to the heap first, so the archive no longer needs the mapping, but the JDK only unmaps it once
+   * it is garbage collected. Windows refuses to replace a mapped file, so saving over a file this
+   * process opened may fail there with an {@link IOException} until that happens.
+   */
+  public void save() throws IOException {
+    evict();
+    entries.values().forEach(sameKey -> sameKey.replaceAll(Entry::onHeap));
+    var directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    var temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try (var out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(size());
+      for (var sameKey : entries.values()) {
+        for (var entry : sameKey) {
+          out.writeLong(entry.signature());
+          out.writeLong(entry.createdAt());
+          out.writeDouble(entry.fitness());
+          out.writeInt(entry.width());
+          out.writeInt(entry.height());
+          var tiles = entry.tiles().duplicate();
+          while (tiles.hasRemaining()) {
+            out.writeByte(tiles.get());
+          }
+        }
+      }
+    } catch (IOException ex) {
+      Files.deleteIfExists(temporary);
+      throw ex;
+    }
+    Files.move(temporary, file,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static List<Entry> read(Path file) throws IOException {
+    MappedByteBuffer buffer;
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not an elite archive: " + file);
+    }
+    if (buffer.getInt(Integer.BYTES) != VERSION) {
+      throw new IOException(String.format("Unsupported elite archive version %d in %s",
+          buffer.getInt(Integer.BYTES), file));
+    }
+    int count = buffer.getInt(Integer.BYTES * 2);
+    // Checked before allocating, so a corrupt count cannot ask for an absurd list
+    if (count < 0 || count > (buffer.limit() - HEADER_BYTES) / ENTRY_HEADER_BYTES) {
+      throw new IOException(String.format("Elite archive %s claims %d entries", file, count));
+    }
+    List<Entry> entries = new ArrayList<>(count);
+    int offset = HEADER_BYTES;
+    for (int i = 0; i < count; i++) {
+      if (offset + ENTRY_HEADER_BYTES > buffer.limit()) {
+        throw new IOException(String.format("Elite archive %s is truncated at entry %d", file, i));
+      }
+      long signature = buffer.getLong(offset);
+      long createdAt = buffer.getLong(offset + Long.BYTES);
+      double fitness = buffer.getDouble(offset + Long.BYTES * 2);
+      int width = buffer.getInt(offset + Long.BYTES * 2 + Double.BYTES);
+      int height = buffer.getInt(offset + Long.BYTES * 2 + Double.BYTES + Integer.BYTES);
+      offset += ENTRY_HEADER_BYTES;
+      if (width <= 0 || height <= 0
+          || packedLength(width, height) > buffer.limit() - offset) {
+        throw new IOException(String.format("Elite archive %s is corrupt at entry %d", file, i));
+      }
+      int length = (int) packedLength(width, height);
+      entries.add(new Entry(signature, createdAt, fitness, width, height,
+          buffer.slice(offset, length)));
+      offset += length;
+    }
+    return entries;
+  }
+
+  private void evict() {
+    long oldest = clock.millis() - maxAge.toMillis();
+    entries.values().forEach(sameKey -> {
+      sameKey.removeIf(entry -> entry.createdAt() < oldest);
+      sameKey.sort(FITTEST_FIRST);
+      if (sameKey.size() > capacity) {
+        sameKey.subList(capacity, sameKey.size()).clear();
+      }
+    });
+    entries.values().removeIf(List::isEmpty);
+  }
+
+  // Doors and stairs that don't line up, counting anything outside the overlap as a mismatch
+  private static int distance(Entry entry, Grid map) {
+    var bounds = map.bounds();
+    int rows = Math.max(entry.height(), bounds.rows());
+    int columns = Math.max(entry.width(), bounds.columns());
+    int distance = 0;
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        boolean inEntry = i < entry.height() && j < entry.width();
+        boolean inMap = i < bounds.rows() && j < bounds.columns();
+        if (inEntry != inMap) {
+          distance++;
+          continue;
+        }
+        var archived = tile(entry, i * entry.width() + j);
+        var fixed = map.get(i, j);
+        if ((isFixed(archived) || isFixed(fixed)) && archived != fixed) {
+          distance++;
+        }
+      }
+    }
+    return distance;
+  }
+
+  private static boolean isFixed(Tile tile) {
+    return tile == Tile.DOOR || tile == Tile.STAIR;
+  }
+
+  private static ByteBuffer pack(Grid grid) {
+    var bounds = grid.bounds();
+    var packed = new byte[(int) packedLength(bounds.width(), bounds.height())];
+    for (int i = 0; i < bounds.rows(); i++) {
+      for (int j = 0; j < bounds.columns(); j++) {
+        int cell = i * bounds.columns() + j;
+        packed[cell / 4] |= grid.get(i, j).ordinal() << (cell % 4 * 2);
+      }
+    }
+    return ByteBuffer.wrap(packed).asReadOnlyBuffer();
+  }
+
+  private static Grid unpack(Entry entry) {
+    var grid = new Grid(entry.width(), entry.height());
+    for (int i = 0; i < entry.height(); i++) {
+      for (int j = 0; j < entry.width(); j++) {
+        var tile = tile(entry, i * entry.width() + j);
+        if (tile != Tile.WALL) {
+          grid.place(tile, i, j);
+        }
+      }
+    }
+    return grid;
+  }
+
+  private static Tile tile(Entry entry, int cell) {
+    return TILES[(entry.tiles().get(cell / 4) >> (cell % 4 * 2)) & 0b11];
+  }
+
+  private static long packedLength(int width, int height) {
+    return (width * (long) height + 3) / 4;
+  }
+
+  private record Entry(long signature, long createdAt, double fitness, int width, int height,
+      ByteBuffer tiles) {
+    private Key key() {
+      return new Key(signature, width, height);
+    }
+
+    private Entry onHeap() {
+      if (!tiles.isDirect()) {
+        return this;
+      }
+      var copy = ByteBuffer.allocate(tiles.remaining());
+      copy.put(tiles.duplicate()).flip();
+      return new Entry(signature, createdAt, fitness, width, height, copy.asReadOnlyBuffer());
+    }
+  }
+
+  private record Key(long signature, int width, int height) {
+    private int distance(Key other) {
+      return Math.abs(width - other.width) + Math.abs(height - other.height);
+    }
+  }
+
+  private record Candidate(Entry entry, int distance) { }
+}
@@ -0,0 +1,197 @@
+package andrepnh.dwarven.villas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Generational GA laying floors over a map. Whatever is not a wall on the map (doors, stairs) is
+ * fixed and copied to every individual; walls are free to become floors and back.
+ */
+public class Evolution {
+  private final Grid map;
+  private final ToDoubleFunction<Grid> fitness;
+  private final Settings settings;
+  private final Random rng;
+  private final int[] ranking;
+  private Grid[] population;
+  private double[] fitnesses;
+  private Grid[] offspring;
+  private double[] offspringFitnesses;
+  private int generation;
+  private long evaluations;
+
+  public Evolution(Grid map, ToDoubleFunction<Grid> fitness, Settings settings, Random rng) {
+    this(map, fitness, settings, rng, ImmutableList.of());
+  }
+
+  /**
+   * Starts from {@code seeds}, e.g. layouts from an {@link EliteArchive}, topping up the
+   * population with random layouts. Seeds are cropped or padded with walls to the map, and the
+   * map's doors and stairs replace whatever the seed had at their positions.
+   */
+  public Evolution(Grid map, ToDoubleFunction<Grid> fitness, Settings settings, Random rng,
+      List<Grid> seeds) {
+    this.map = requireNonNull(map);
+    this.fitness = requireNonNull(fitness);
+    this.settings = requireNonNull(settings);
+    this.rng = requireNonNull(rng);
+    int size = settings.populationSize();
+    this.ranking = new int[size];
+    this.population = new Grid[size];
+    this.fitnesses = new double[size];
+    this.offspring = new Grid[size];
+    this.offspringFitnesses = new double[size];
+    checkArgument(seeds.size() <= size, "Got %s seeds for a population of %s",
+        seeds.size(), size);
+    for (int i = 0; i < size; i++) {
+      population[i] = i < seeds.size() ? adapt(seeds.get(i)) : randomLayout();
+      fitnesses[i] = evaluate(population[i]);
+    }
+    Selection.elite(fitnesses, Math.max(1, settings.eliteCount()), ranking);
+  }
+
+  public void evolve(int generations) {
+    checkArgument(generations >= 0, "Negative generations: %s", generations);
+    for (int i = 0; i < generations; i++) {
+      step();
+    }
+  }
+
+  public void step() {
+    int elites = settings.eliteCount();
+    for (int i = 0; i < elites; i++) {
+      offspring[i] = population[ranking[i]];
+      offspringFitnesses[i] = fitnesses[ranking[i]];
+    }
+    for (int i = elites; i < offspring.length; i++) {
+      var mother = population[Selection.tournament(fitnesses, settings.tournamentSize(), rng)];
+      var father = population[Selection.tournament(fitnesses, settings.tournamentSize(), rng)];
+      offspring[i] = breed(mother, father);
+      offspringFitnesses[i] = evaluate(offspring[i]);
+    }
+    swapGenerations();
+    Selection.elite(fitnesses, Math.max(1, elites), ranking);
+    generation++;
+  }
+
+  public Grid best() {
+    return population[ranking[0]];
+  }
+
+  public double bestFitness() {
+    return fitnesses[ranking[0]];
+  }
+
+  public void forEachElite(ObjDoubleConsumer<Grid> consumer) {
+    for (int i = 0; i < Math.max(1, settings.eliteCount()); i++) {
+      consumer.accept(population[ranking[i]], fitnesses[ranking[i]]);
+    }
+  }
+
+  public int generation() {
+    return generation;
+  }
+
+  public long evaluations() {
+    return evaluations;
+  }
+
+  private double evaluate(Grid grid) {
+    evaluations++;
+    return fitness.applyAsDouble(grid);
+  }
+
+  private void swapGenerations() {
+    var grids = population;
+    population = offspring;
+    offspring = grids;
+    var values = fitnesses;
+    fitnesses = offspringFitnesses;
+    offspringFitnesses = values;
+  }
+
+  private Grid randomLayout() {
+    var bounds = map.bounds();
+    var grid = new Grid(bounds.width(), bounds.height());
+    for (int i = 0; i < bounds.rows(); i++) {
+      for (int j = 0; j < bounds.columns(); j++) {
+        var fixed = map.get(i, j);
+        if (fixed != Tile.WALL) {
+          grid.place(fixed, i, j);
+        } else if (rng.nextDouble() < settings.floorDensity()) {
+          grid.place(Tile.FLOOR, i, j);
+        }
+      }
+    }
+    return grid;
+  }
+
+  private Grid adapt(Grid seed) {
+    var bounds = map.bounds();
+    var seedBounds = seed.bounds();
+    var grid = new Grid(bounds.width(), bounds.height());
+    for (int i = 0; i < bounds.rows(); i++) {
+      for (int j = 0; j < bounds.columns(); j++) {
+        var fixed = map.get(i, j);
+        if (fixed != Tile.WALL) {
+          grid.place(fixed, i, j);
+        } else if (i < seedBounds.rows() && j < seedBounds.columns()
+            && seed.get(i, j) == Tile.FLOOR) {
+          grid.place(Tile.FLOOR, i, j);
+        }
+      }
+    }
+    return grid;
+  }
+
+  // Two point crossover over the tiles in row-major order, then per tile mutation
+  private Grid breed(Grid mother, Grid father) {
+    var bounds = map.bounds();
+    int columns = bounds.columns(), cells = bounds.rows() * columns;
+    int first = rng.nextInt(cells), second = rng.nextInt(cells);
+    int from = Math.min(first, second), to = Math.max(first, second);
+    var child = new Grid(bounds.width(), bounds.height());
+    for (int cell = 0; cell < cells; cell++) {
+      int i = cell / columns, j = cell % columns;
+      var fixed = map.get(i, j);
+      if (fixed != Tile.WALL) {
+        child.place(fixed, i, j);
+        continue;
+      }
+      var parent = from <= cell && cell < to ? father : mother;
+      boolean floor = parent.get(i, j) == Tile.FLOOR;
+      if (rng.nextDouble() < settings.mutationRate()) {
+        floor = !floor;
+      }
+      if (floor) {
+        child.place(Tile.FLOOR, i, j);
+      }
+    }
+    return child;
+  }
+
+  public record Settings(int populationSize, int eliteCount, int tournamentSize,
+      double mutationRate, double floorDensity) {
+    public Settings {
+      checkArgument(populationSize > 0, "Population size <= 0: %s", populationSize);
+      checkArgument(0 <= eliteCount && eliteCount < populationSize,
+          "Elite count must be in [0, %s); got %s", populationSize, eliteCount);
+      checkArgument(tournamentSize > 0, "Tournament size <= 0: %s", tournamentSize);
+      checkArgument(0 <= mutationRate && mutationRate <= 1,
+          "Mutation rate must be in [0, 1]; got %s", mutationRate);
+      checkArgument(0 <= floorDensity && floorDensity <= 1,
+          "Floor density must be in [0, 1]; got %s", floorDensity);
+    }
+
+    public static Settings defaults(int populationSize) {
+      int eliteCount = Math.min(populationSize - 1, Math.max(1, populationSize / 20));
+      return new Settings(populationSize, eliteCount, 3, 0.01, 0.3);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package andrepnh.dwarven.villas;
+
+/**
+ * A cheap look at a grid that can rule it out before the full fitness is computed.
+ */
+public interface FitnessStage {
+  String name();
+
+  /**
+   * Cost of {@link #bound(Grid)} as a fraction of the full fitness. Stages run cheapest first,
+   * and only while they prune a larger fraction of grids than their cost.
+   */
+  double cost();
+
+  /**
+   * Optimistic upper bound on the full fitness of {@code grid}; it must never underestimate.
+   */
+  double bound(Grid grid);
+}
@@ -11,16 +11,22 @@ import java.util.stream.Stream;
 public class Grid {
   private final Bounds bounds;
   private final Tile[][] tiles;
+  private final int[] counts;
 
   public Grid(int width, int height) {
     this.bounds = new Bounds(width, height);
     this.tiles = new Tile[bounds.rows()][bounds.columns()];
     Stream.of(tiles).forEach(row -> Arrays.fill(row, Tile.WALL));
+    this.counts = new int[Tile.values().length];
+    counts[Tile.WALL.ordinal()] = width * height;
   }
 
   public void place(Tile tile, int i, int j) {
     checkTileReplacement(tile, i, j);
+    var replaced = tiles[i][j];
     tiles[i][j] = requireNonNull(tile);
+    counts[replaced.ordinal()]--;
+    counts[tile.ordinal()]++;
   }
 
   public void place(Tile tile1, int i1, int j1,
@@ -45,6 +51,10 @@ public class Grid {
     return bounds;
   }
 
+  public int count(Tile tile) {
+    return counts[tile.ordinal()];
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -0,0 +1,151 @@
+package andrepnh.dwarven.villas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Random;
+
+/**
+ * Selection over fitness kept in a {@code double[]} indexed by individual. Callers own the scratch
+ * buffers, so nothing here boxes or allocates. Higher is fitter; NaN is not allowed.
+ */
+public final class Selection {
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private Selection() { }
+
+  /**
+   * Leaves the indices of the {@code k} fittest individuals, best first, at the start of
+   * {@code indices}; the rest follow in no particular order. Only the top k get sorted.
+   */
+  public static void elite(double[] fitness, int k, int[] indices) {
+    int n = fitness.length;
+    checkArgument(0 <= k && k <= n, "Cannot select %s out of %s individuals", k, n);
+    checkArgument(indices.length >= n,
+        "Index buffer is smaller than the population: %s < %s", indices.length, n);
+    for (int i = 0; i < n; i++) {
+      indices[i] = i;
+    }
+    if (k == 0) {
+      return;
+    }
+    if (k < n) {
+      select(fitness, indices, 0, n - 1, k - 1);
+    }
+    sort(fitness, indices, 0, k - 1);
+  }
+
+  /**
+   * Returns the fittest out of {@code size} individuals drawn with replacement.
+   */
+  public static int tournament(double[] fitness, int size, Random rng) {
+    checkArgument(size > 0, "Tournament size <= 0: %s", size);
+    checkArgument(fitness.length > 0, "Cannot run a tournament on an empty population");
+    int best = rng.nextInt(fitness.length);
+    for (int round = 1; round < size; round++) {
+      int challenger = rng.nextInt(fitness.length);
+      if (fitness[challenger] > fitness[best]) {
+        best = challenger;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Linear ranking weights for an {@link AliasTable}: the fittest weighs {@code pressure}, the
+   * least fit {@code 2 - pressure}. Leaves {@code indices} sorted best first.
+   */
+  public static void rankWeights(double[] fitness, double pressure, int[] indices,
+      double[] weights) {
+    // Spelled out since checkArgument would box the pressure on every call
+    if (!(1 <= pressure && pressure <= 2)) {
+      throw new IllegalArgumentException("Selection pressure must be in [1, 2]; got " + pressure);
+    }
+    int n = fitness.length;
+    checkArgument(weights.length >= n,
+        "Weight buffer is smaller than the population: %s < %s", weights.length, n);
+    elite(fitness, n, indices);
+    if (n == 1) {
+      weights[indices[0]] = 1;
+      return;
+    }
+    double step = 2 * (pressure - 1) / (n - 1);
+    for (int rank = 0; rank < n; rank++) {
+      weights[indices[rank]] = pressure - step * rank;
+    }
+  }
+
+  private static void select(double[] fitness, int[] indices, int left, int right, int nth) {
+    while (right - left > INSERTION_SORT_THRESHOLD) {
+      int split = partition(fitness, indices, left, right);
+      if (nth <= split) {
+        right = split;
+      } else {
+        left = split + 1;
+      }
+    }
+    insertionSort(fitness, indices, left, right);
+  }
+
+  private static void sort(double[] fitness, int[] indices, int left, int right) {
+    while (right - left > INSERTION_SORT_THRESHOLD) {
+      int split = partition(fitness, indices, left, right);
+      // Recurse into the smaller half so the stack stays logarithmic
+      if (split - left < right - split) {
+        sort(fitness, indices, left, split);
+        left = split + 1;
+      } else {
+        sort(fitness, indices, split + 1, right);
+        right = split;
+      }
+    }
+    insertionSort(fitness, indices, left, right);
+  }
+
+  // Hoare partition around a median of three; nothing in [left, split] is less fit than
+  // anything in (split, right]
+  private static int partition(double[] fitness, int[] indices, int left, int right) {
+    int mid = (left + right) >>> 1;
+    if (fitness[indices[mid]] > fitness[indices[left]]) {
+      swap(indices, left, mid);
+    }
+    if (fitness[indices[right]] > fitness[indices[left]]) {
+      swap(indices, left, right);
+    }
+    if (fitness[indices[right]] > fitness[indices[mid]]) {
+      swap(indices, mid, right);
+    }
+    double pivot = fitness[indices[mid]];
+    int i = left - 1, j = right + 1;
+    while (true) {
+      do {
+        i++;
+      } while (fitness[indices[i]] > pivot);
+      do {
+        j--;
+      } while (fitness[indices[j]] < pivot);
+      if (i >= j) {
+        return j;
+      }
+      swap(indices, i, j);
+    }
+  }
+
+  private static void insertionSort(double[] fitness, int[] indices, int left, int right) {
+    for (int i = left + 1; i <= right; i++) {
+      int index = indices[i];
+      double value = fitness[index];
+      int j = i - 1;
+      while (j >= left && fitness[indices[j]] < value) {
+        indices[j + 1] = indices[j];
+        j--;
+      }
+      indices[j + 1] = index;
+    }
+  }
+
+  private static void swap(int[] indices, int i, int j) {
+    int tmp = indices[i];
+    indices[i] = indices[j];
+    indices[j] = tmp;
+  }
+}
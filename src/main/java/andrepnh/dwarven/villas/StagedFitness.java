@@ -0,0 +1,96 @@
+package andrepnh.dwarven.villas;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs the bound stages cheapest first and stops as soon as one shows a grid cannot reach the
+ * threshold; only grids that survive every stage get the full fitness. A rejected grid scores
+ * {@link Double#NEGATIVE_INFINITY}, so it drops out of selection instead of competing with a
+ * bound that may well be higher than the exact fitness of grids that survived.
+ *
+ * <p>That is only sound when the threshold is a real cut, like the worst survivor of a truncation
+ * or (mu + lambda) selection: nothing below it may be kept, whatever its exact fitness.
+ * Tournaments are not such a cut, since any individual can win against weaker draws, which is
+ * why {@link Evolution} scores every offspring exactly.
+ *
+ * <p>A stage that prunes a smaller fraction of grids than its cost is skipped, except for one grid
+ * out of {@value #RESAMPLE_EVERY} so its prune rate keeps up with the population.
+ */
+public class StagedFitness {
+  private static final int WARMUP = 256;
+  private static final int RESAMPLE_EVERY = 64;
+
+  private final ToDoubleFunction<Grid> fitness;
+  private final ImmutableList<FitnessStage> stages;
+  private final long[] reached;
+  private final long[] evaluated;
+  private final long[] pruned;
+  private long exact;
+
+  public StagedFitness(ToDoubleFunction<Grid> fitness, List<FitnessStage> stages) {
+    this.fitness = requireNonNull(fitness);
+    this.stages = stages.stream()
+        .sorted(Comparator.comparingDouble(FitnessStage::cost))
+        .collect(ImmutableList.toImmutableList());
+    this.reached = new long[stages.size()];
+    this.evaluated = new long[stages.size()];
+    this.pruned = new long[stages.size()];
+  }
+
+  /**
+   * The fitness of {@code grid} if it could reach {@code threshold}, otherwise
+   * {@link Double#NEGATIVE_INFINITY}.
+   */
+  public double evaluate(Grid grid, double threshold) {
+    double bound = Double.POSITIVE_INFINITY;
+    // Nothing can be pruned without a threshold
+    for (int stage = 0; threshold > Double.NEGATIVE_INFINITY && stage < stages.size(); stage++) {
+      reached[stage]++;
+      if (!worthRunning(stage)) {
+        continue;
+      }
+      evaluated[stage]++;
+      bound = Math.min(bound, stages.get(stage).bound(grid));
+      if (bound < threshold) {
+        pruned[stage]++;
+        return Double.NEGATIVE_INFINITY;
+      }
+    }
+    exact++;
+    return fitness.applyAsDouble(grid);
+  }
+
+  public double evaluate(Grid grid) {
+    return evaluate(grid, Double.NEGATIVE_INFINITY);
+  }
+
+  public ImmutableList<StageStats> stats() {
+    var stats = ImmutableList.<StageStats>builderWithExpectedSize(stages.size());
+    for (int stage = 0; stage < stages.size(); stage++) {
+      stats.add(new StageStats(
+          stages.get(stage).name(), reached[stage], evaluated[stage], pruned[stage]));
+    }
+    return stats.build();
+  }
+
+  public long exactEvaluations() {
+    return exact;
+  }
+
+  private boolean worthRunning(int stage) {
+    return evaluated[stage] < WARMUP
+        || reached[stage] % RESAMPLE_EVERY == 0
+        || pruned[stage] >= stages.get(stage).cost() * evaluated[stage];
+  }
+
+  public record StageStats(String name, long reached, long evaluated, long pruned) {
+    public double pruneRate() {
+      return evaluated == 0 ? 0 : pruned / (double) evaluated;
+    }
+  }
+}
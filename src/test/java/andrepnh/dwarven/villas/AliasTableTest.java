@@ -0,0 +1,95 @@
+package andrepnh.dwarven.villas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class AliasTableTest {
+  @Test
+  void samplesShouldFollowTheWeights() {
+    var table = new AliasTable(4);
+    table.reset(new double[] { 1, 2, 3, 4 });
+    var rng = new Random(13);
+    int[] hits = new int[4];
+    int spins = 100_000;
+    for (int i = 0; i < spins; i++) {
+      hits[table.sample(rng)]++;
+    }
+    for (int i = 0; i < hits.length; i++) {
+      assertThat(hits[i] / (double) spins).isCloseTo((i + 1) / 10.0, within(0.01));
+    }
+  }
+
+  @Test
+  void zeroWeightsShouldNeverBeSampled() {
+    var table = new AliasTable(5);
+    table.reset(new double[] { 0, 5, 0, 1, 0 });
+    var rng = new Random(17);
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(table.sample(rng)).isIn(1, 3);
+    }
+  }
+
+  @Test
+  void resetShouldAllowFewerWeightsThanTheCapacity() {
+    var table = new AliasTable(10);
+    table.reset(new double[] { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 });
+    table.reset(new double[] { 0, 1 });
+    assertThat(table.size()).isEqualTo(2);
+    assertThat(table.sample(new Random(19))).isEqualTo(1);
+  }
+
+  @Test
+  void resetShouldIgnoreStaleWeightsPastN() {
+    var table = new AliasTable(6);
+    double[] weights = { 0, 1, 0, 5, 5, 5 };
+    table.reset(weights, 3);
+    assertThat(table.size()).isEqualTo(3);
+    var rng = new Random(23);
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(table.sample(rng)).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void resetShouldTakeRankWeightsFromABufferSizedForMore() {
+    int capacity = 1_000_000;
+    var table = new AliasTable(capacity);
+    double[] weights = new double[capacity];
+    int[] indices = new int[capacity];
+    Arrays.fill(weights, 1);
+    double[] fitness = { 3, 1, 2 };
+    Selection.rankWeights(fitness, 2, indices, weights);
+
+    table.reset(weights, fitness.length);
+
+    assertThat(table.size()).isEqualTo(3);
+    var rng = new Random(29);
+    int[] hits = new int[3];
+    int spins = 30_000;
+    for (int i = 0; i < spins; i++) {
+      hits[table.sample(rng)]++;
+    }
+    // Weights 2, 0 and 1
+    assertThat(hits[0] / (double) spins).isCloseTo(2 / 3.0, within(0.01));
+    assertThat(hits[1]).isZero();
+  }
+
+  @Test
+  void negativeWeightsAreNotAllowed() {
+    var table = new AliasTable(3);
+    assertThatThrownBy(() -> table.reset(new double[] { 1, -1, 1 }))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("1");
+  }
+
+  @Test
+  void samplingBeforeResetIsNotAllowed() {
+    assertThatThrownBy(() -> new AliasTable(3).sample(new Random()))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,82 @@
+package andrepnh.dwarven.villas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BedroomsTest {
+  private final Bedrooms bedrooms = new Bedrooms(3, 4);
+
+  @Test
+  void floorsNextToADoorMakeABedroom() {
+    var grid = new Grid(5, 1);
+    grid.place(Tile.DOOR, 0, 0, Tile.FLOOR, 0, 1, Tile.FLOOR, 0, 2);
+    grid.place(Tile.FLOOR, 0, 3);
+    assertThat(bedrooms.applyAsDouble(grid)).isEqualTo(1);
+  }
+
+  @Test
+  void doorsMayBeDiagonallyAdjacent() {
+    var grid = new Grid(4, 2);
+    grid.place(Tile.DOOR, 0, 0);
+    grid.place(Tile.FLOOR, 1, 1, Tile.FLOOR, 1, 2, Tile.FLOOR, 1, 3);
+    assertThat(bedrooms.applyAsDouble(grid)).isEqualTo(1);
+  }
+
+  @Test
+  void floorsWithoutDoorsAreWasted() {
+    var grid = new Grid(5, 2);
+    grid.place(Tile.FLOOR, 0, 0, Tile.FLOOR, 0, 1, Tile.FLOOR, 0, 2);
+    assertThat(bedrooms.applyAsDouble(grid)).isEqualTo(-3 / 10.0);
+  }
+
+  @Test
+  void regionsOutsideTheSizeBoundsAreWasted() {
+    // D--  D-----
+    var grid = new Grid(11, 1);
+    grid.place(Tile.DOOR, 0, 0, Tile.FLOOR, 0, 1, Tile.FLOOR, 0, 2);
+    grid.place(Tile.DOOR, 0, 5);
+    for (int j = 6; j < 11; j++) {
+      grid.place(Tile.FLOOR, 0, j);
+    }
+    assertThat(bedrooms.applyAsDouble(grid)).isEqualTo(-7 / 11.0);
+  }
+
+  @Test
+  void diagonallyAdjacentFloorsAreSeparateRegions() {
+    // D---
+    //     ---D
+    var grid = new Grid(8, 2);
+    grid.place(Tile.DOOR, 0, 0, Tile.FLOOR, 0, 1, Tile.FLOOR, 0, 2);
+    grid.place(Tile.FLOOR, 0, 3);
+    grid.place(Tile.FLOOR, 1, 4, Tile.FLOOR, 1, 5, Tile.FLOOR, 1, 6);
+    grid.place(Tile.DOOR, 1, 7);
+    assertThat(bedrooms.applyAsDouble(grid)).isEqualTo(2);
+  }
+
+  @Test
+  void boundsShouldNeverUnderestimateTheFitness() {
+    var rng = new Random(23);
+    for (int attempt = 0; attempt < 500; attempt++) {
+      var grid = new Grid(1 + rng.nextInt(12), 1 + rng.nextInt(12));
+      for (int i = 0; i < grid.bounds().rows(); i++) {
+        for (int j = 0; j < grid.bounds().columns(); j++) {
+          double roll = rng.nextDouble();
+          grid.place(roll < 0.5 ? Tile.FLOOR : roll < 0.65 ? Tile.DOOR : Tile.WALL, i, j);
+        }
+      }
+      double fitness = bedrooms.applyAsDouble(grid);
+      assertThat(bedrooms.stages())
+          .allSatisfy(stage -> assertThat(stage.bound(grid)).isGreaterThanOrEqualTo(fitness));
+    }
+  }
+
+  @Test
+  void bedroomsCannotBeSmallerThanRooms() {
+    assertThatThrownBy(() -> new Bedrooms(2, 5))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("2");
+  }
+}
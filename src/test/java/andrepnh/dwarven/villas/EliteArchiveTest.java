@@ -0,0 +1,209 @@
+package andrepnh.dwarven.villas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EliteArchiveTest {
+  private static final long SIGNATURE = new Bedrooms().signature();
+  private static final Duration MAX_AGE = Duration.ofDays(30);
+  private static final Instant NOW = Instant.parse("2020-06-01T00:00:00Z");
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void layoutsShouldSurviveASaveAndReopen() throws IOException {
+    var file = directory.resolve("elites.bin");
+    var archive = open(file, NOW);
+    var layout = layout(5, 4, 1);
+    archive.add(SIGNATURE, layout, 2.5);
+    archive.save();
+
+    var reopened = open(file, NOW);
+    assertThat(reopened.size()).isEqualTo(1);
+    assertThat(reopened.nearest(layout, SIGNATURE, 5)).containsExactly(layout);
+  }
+
+  @Test
+  void layoutsReadFromAFileShouldSurviveSavingOverIt() throws IOException {
+    var file = directory.resolve("elites.bin");
+    var first = open(file, NOW);
+    first.add(SIGNATURE, layout(5, 4, 1), 2.5);
+    first.save();
+
+    var archive = open(file, NOW);
+    archive.add(SIGNATURE, layout(5, 4, 0), 1);
+    archive.save();
+
+    var reopened = open(file, NOW);
+    assertThat(reopened.size()).isEqualTo(2);
+    assertThat(reopened.nearest(layout(5, 4, 1), SIGNATURE, 5))
+        .containsExactly(layout(5, 4, 1), layout(5, 4, 0));
+  }
+
+  @Test
+  void nearestShouldPreferMatchingDoorsAndStairsThenFitness() {
+    var archive = open(directory.resolve("elites.bin"), NOW);
+    var sameMapWorse = layout(6, 6, 1);
+    var sameMapBetter = layout(6, 6, 1);
+    sameMapBetter.place(Tile.FLOOR, 5, 5);
+    var otherMap = layout(6, 6, 2);
+    var biggerMap = layout(8, 8, 1);
+    archive.add(SIGNATURE, otherMap, 10);
+    archive.add(SIGNATURE, biggerMap, 10);
+    archive.add(SIGNATURE, sameMapWorse, 1);
+    archive.add(SIGNATURE, sameMapBetter, 2);
+
+    assertThat(archive.nearest(layout(6, 6, 1), SIGNATURE, 3))
+        .containsExactly(sameMapBetter, sameMapWorse, otherMap);
+  }
+
+  @Test
+  void nearestShouldFallBackToTheClosestBounds() {
+    var archive = open(directory.resolve("elites.bin"), NOW);
+    var farther = layout(9, 9, 1);
+    var closer = layout(7, 6, 1);
+    var same = layout(6, 6, 2);
+    archive.add(SIGNATURE, farther, 10);
+    archive.add(SIGNATURE, closer, 1);
+    archive.add(SIGNATURE, same, 0);
+
+    assertThat(archive.nearest(layout(6, 6, 1), SIGNATURE, 5))
+        .containsExactly(same, closer, farther);
+    assertThat(archive.nearest(layout(6, 6, 1), SIGNATURE, 2)).containsExactly(same, closer);
+  }
+
+  @Test
+  void elitesShouldSeedUpToHalfThePopulation() {
+    var archive = open(directory.resolve("elites.bin"), NOW);
+    var map = layout(6, 6, 1);
+    var settings = new Evolution.Settings(6, 4, 2, 0.01, 0.3);
+    var evolution = new Evolution(map, new Bedrooms(), settings, new Random(1));
+    archive.addElites(SIGNATURE, evolution);
+
+    assertThat(archive.size()).isEqualTo(4);
+    assertThat(archive.seeds(map, SIGNATURE, settings)).hasSize(3)
+        .allSatisfy(seed -> assertThat(seed.get(0, 1)).isEqualTo(Tile.DOOR));
+  }
+
+  @Test
+  void nearestShouldIgnoreOtherSignatures() {
+    var archive = open(directory.resolve("elites.bin"), NOW);
+    archive.add(new Bedrooms(4, 8).signature(), layout(6, 6, 1), 5);
+    assertThat(archive.nearest(layout(6, 6, 1), SIGNATURE, 3)).isEmpty();
+  }
+
+  @Test
+  void onlyTheFittestLayoutsPerKeyShouldBeKept() throws IOException {
+    var archive = EliteArchive.open(directory.resolve("elites.bin"), 2, MAX_AGE, clock(NOW));
+    for (int floors = 0; floors < 4; floors++) {
+      var grid = layout(6, 6, 1);
+      for (int j = 0; j < floors; j++) {
+        grid.place(Tile.FLOOR, 5, j);
+      }
+      archive.add(SIGNATURE, grid, floors);
+    }
+    archive.add(SIGNATURE, layout(7, 7, 1), 0);
+
+    assertThat(archive.size()).isEqualTo(3);
+    assertThat(archive.nearest(layout(6, 6, 1), SIGNATURE, 2))
+        .extracting(grid -> grid.get(5, 2))
+        .containsExactly(Tile.FLOOR, Tile.WALL);
+  }
+
+  @Test
+  void addingTheSameLayoutTwiceShouldKeepOneCopy() {
+    var archive = open(directory.resolve("elites.bin"), NOW);
+    archive.add(SIGNATURE, layout(6, 6, 1), 1);
+    archive.add(SIGNATURE, layout(6, 6, 1), 1);
+    assertThat(archive.size()).isEqualTo(1);
+  }
+
+  @Test
+  void layoutsOlderThanTheMaxAgeShouldBeEvicted() throws IOException {
+    var file = directory.resolve("elites.bin");
+    var archive = open(file, NOW);
+    archive.add(SIGNATURE, layout(6, 6, 1), 1);
+    archive.save();
+
+    assertThat(open(file, NOW.plus(MAX_AGE)).size()).isEqualTo(1);
+    assertThat(open(file, NOW.plus(MAX_AGE).plusMillis(1)).size()).isZero();
+  }
+
+  @Test
+  void filesThatAreNotArchivesShouldBeRejected() throws IOException {
+    var file = Files.writeString(directory.resolve("elites.bin"), "not an archive");
+    assertThatThrownBy(() -> EliteArchive.open(file, 5, MAX_AGE))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining(file.toString());
+  }
+
+  @Test
+  void entryCountsTheFileCannotHoldShouldBeRejected() throws IOException {
+    for (int count : new int[] { -1, 2, Integer.MAX_VALUE }) {
+      // A file each, since a failed open may leave the last one mapped
+      var file = directory.resolve("elites" + count + ".bin");
+      var archive = open(file, NOW);
+      archive.add(SIGNATURE, layout(6, 6, 1), 1);
+      archive.save();
+      corrupt(file, Integer.BYTES * 2, count);
+      assertThatThrownBy(() -> EliteArchive.open(file, 5, MAX_AGE, clock(NOW)))
+          .isInstanceOf(IOException.class)
+          .hasMessageContaining(file.toString());
+    }
+  }
+
+  @Test
+  void boundsTooLargeForTheFileShouldBeRejected() throws IOException {
+    var file = directory.resolve("elites.bin");
+    var archive = open(file, NOW);
+    archive.add(SIGNATURE, layout(6, 6, 1), 1);
+    archive.save();
+    // Width then height, right after the header and the entry's signature, date and fitness
+    int width = Integer.BYTES * 3 + Long.BYTES * 2 + Double.BYTES;
+    corrupt(file, width, Integer.MAX_VALUE);
+    corrupt(file, width + Integer.BYTES, Integer.MAX_VALUE);
+
+    assertThatThrownBy(() -> EliteArchive.open(file, 5, MAX_AGE, clock(NOW)))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining(file.toString());
+  }
+
+  private void corrupt(Path file, int offset, int value) throws IOException {
+    var bytes = Files.readAllBytes(file);
+    ByteBuffer.wrap(bytes).putInt(offset, value);
+    Files.write(file, bytes);
+  }
+
+  private EliteArchive open(Path file, Instant now) {
+    try {
+      return EliteArchive.open(file, 5, MAX_AGE, clock(now));
+    } catch (IOException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  private Clock clock(Instant now) {
+    return Clock.fixed(now, ZoneOffset.UTC);
+  }
+
+  // A door and a stair, shifted right by offset, above a row of floors
+  private Grid layout(int width, int height, int offset) {
+    var grid = new Grid(width, height);
+    grid.place(Tile.DOOR, 0, offset, Tile.STAIR, 0, offset + 3);
+    grid.place(Tile.FLOOR, 1, offset, Tile.FLOOR, 1, offset + 1, Tile.FLOOR, 1, offset + 2);
+    return grid;
+  }
+}
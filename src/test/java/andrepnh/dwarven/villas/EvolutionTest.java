@@ -0,0 +1,95 @@
+package andrepnh.dwarven.villas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class EvolutionTest {
+  private final Evolution.Settings settings = Evolution.Settings.defaults(40);
+
+  @Test
+  void eliteFitnessShouldNeverGetWorse() {
+    var evolution = new Evolution(doors(), new Bedrooms(), settings, new Random(1));
+    double previous = evolution.bestFitness();
+    for (int i = 0; i < 20; i++) {
+      evolution.step();
+      assertThat(evolution.bestFitness()).isGreaterThanOrEqualTo(previous);
+      previous = evolution.bestFitness();
+    }
+    assertThat(evolution.generation()).isEqualTo(20);
+  }
+
+  @Test
+  void mapTilesShouldBeKeptInEveryIndividual() {
+    var map = doors();
+    var evolution = new Evolution(map, new Bedrooms(), settings, new Random(2));
+    evolution.evolve(10);
+    var best = evolution.best();
+    for (int i = 0; i < map.bounds().rows(); i++) {
+      for (int j = 0; j < map.bounds().columns(); j++) {
+        if (map.get(i, j) != Tile.WALL) {
+          assertThat(best.get(i, j)).isEqualTo(map.get(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  void everyNonEliteOffspringShouldBeEvaluated() {
+    var evolution = new Evolution(doors(), new Bedrooms(), settings, new Random(3));
+    evolution.evolve(5);
+    int bred = settings.populationSize() - settings.eliteCount();
+    assertThat(evolution.evaluations()).isEqualTo(settings.populationSize() + 5L * bred);
+  }
+
+  @Test
+  void sameSeedsShouldEvolveTheSameLayouts() {
+    var first = new Evolution(doors(), new Bedrooms(), settings, new Random(4));
+    var second = new Evolution(doors(), new Bedrooms(), settings, new Random(4));
+    first.evolve(5);
+    second.evolve(5);
+    assertThat(first.best()).isEqualTo(second.best());
+  }
+
+  @Test
+  void seededRunsShouldStartFromTheSeeds() {
+    var previous = new Evolution(doors(), new Bedrooms(), settings, new Random(5));
+    previous.evolve(10);
+
+    var seeded = new Evolution(doors(), new Bedrooms(), settings, new Random(6),
+        List.of(previous.best()));
+    assertThat(seeded.bestFitness()).isGreaterThanOrEqualTo(previous.bestFitness());
+  }
+
+  @Test
+  void seedsShouldBeFittedToTheMap() {
+    var seed = new Grid(20, 3);
+    seed.place(Tile.STAIR, 0, 3);
+    seed.place(Tile.FLOOR, 1, 0, Tile.FLOOR, 1, 1, Tile.FLOOR, 1, 15);
+    var noMutations = new Evolution.Settings(1, 0, 1, 0, 0);
+
+    var best = new Evolution(doors(), new Bedrooms(), noMutations, new Random(7), List.of(seed))
+        .best();
+
+    var expected = doors();
+    expected.place(Tile.FLOOR, 1, 0, Tile.FLOOR, 1, 1);
+    assertThat(best).isEqualTo(expected);
+  }
+
+  @Test
+  void eliteCountMustLeaveRoomForOffspring() {
+    assertThatThrownBy(() -> new Evolution.Settings(10, 10, 2, 0.01, 0.3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("10");
+  }
+
+  private Grid doors() {
+    var grid = new Grid(12, 12);
+    grid.place(Tile.DOOR, 0, 3, Tile.DOOR, 5, 0, Tile.DOOR, 11, 7);
+    grid.place(Tile.STAIR, 6, 6);
+    return grid;
+  }
+}
@@ -84,6 +84,16 @@ class GridTest {
         .hasMessageContaining(String.valueOf(j));
   }
 
+  @Test
+  void countShouldFollowPlacements() {
+    walls5x5.place(Tile.FLOOR, 0, 0, Tile.FLOOR, 0, 1, Tile.STAIR, 4, 4);
+    walls5x5.place(Tile.DOOR, 0, 1);
+    assertEquals(22, walls5x5.count(Tile.WALL));
+    assertEquals(1, walls5x5.count(Tile.FLOOR));
+    assertEquals(1, walls5x5.count(Tile.DOOR));
+    assertEquals(1, walls5x5.count(Tile.STAIR));
+  }
+
   @Test
   void placing2TilesAtOnceShouldBeTheSameAsPlacingThemOneAtATime() {
     var anotherWalls5x5 = new Grid(5, 5);
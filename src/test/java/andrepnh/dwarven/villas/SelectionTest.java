@@ -0,0 +1,138 @@
+package andrepnh.dwarven.villas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SelectionTest {
+  @ParameterizedTest
+  @CsvSource({ "1, 1", "10, 0", "10, 3", "10, 10", "1000, 1", "1000, 50", "1000, 1000",
+      "1000000, 50000" })
+  void eliteShouldMatchAFullSortOfTheFitness(int populationSize, int k) {
+    var rng = new Random(populationSize * 31L + k);
+    double[] fitness = rng.doubles(populationSize).toArray();
+    int[] indices = new int[populationSize];
+
+    Selection.elite(fitness, k, indices);
+
+    double[] expected = Arrays.stream(fitness)
+        .boxed()
+        .sorted(Comparator.reverseOrder())
+        .limit(k)
+        .mapToDouble(Double::doubleValue)
+        .toArray();
+    double[] actual = IntStream.of(indices).limit(k).mapToDouble(i -> fitness[i]).toArray();
+    assertThat(actual).containsExactly(expected);
+  }
+
+  @Test
+  void eliteShouldKeepEveryIndexInTheBuffer() {
+    double[] fitness = new Random(7).doubles(500).toArray();
+    int[] indices = new int[fitness.length];
+
+    Selection.elite(fitness, 20, indices);
+
+    assertThat(indices).containsExactlyInAnyOrder(IntStream.range(0, 500).toArray());
+  }
+
+  @Test
+  void eliteShouldCopeWithManyTies() {
+    var rng = new Random(11);
+    double[] fitness = IntStream.range(0, 2000).mapToDouble(i -> rng.nextInt(3)).toArray();
+    int[] indices = new int[fitness.length];
+
+    Selection.elite(fitness, 1500, indices);
+
+    for (int rank = 1; rank < 1500; rank++) {
+      assertThat(fitness[indices[rank]]).isLessThanOrEqualTo(fitness[indices[rank - 1]]);
+    }
+    double worstElite = fitness[indices[1499]];
+    assertThat(IntStream.range(1500, 2000).mapToDouble(rank -> fitness[indices[rank]]))
+        .allMatch(value -> value <= worstElite);
+  }
+
+  @Test
+  void eliteShouldNotAcceptABufferSmallerThanThePopulation() {
+    assertThatThrownBy(() -> Selection.elite(new double[5], 2, new int[4]))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("4 < 5");
+  }
+
+  @Test
+  void tournamentsOfOneShouldPickUniformly() {
+    var rng = new Random(3);
+    double[] fitness = { 1, 100, 1000 };
+    int[] wins = new int[fitness.length];
+    for (int i = 0; i < 30_000; i++) {
+      wins[Selection.tournament(fitness, 1, rng)]++;
+    }
+    assertThat(wins).allMatch(count -> count > 9_000 && count < 11_000);
+  }
+
+  @Test
+  void biggerTournamentsShouldFavorFitterIndividuals() {
+    var rng = new Random(5);
+    double[] fitness = { 3, 2, 1 };
+    int[] wins = new int[fitness.length];
+    for (int i = 0; i < 30_000; i++) {
+      wins[Selection.tournament(fitness, 4, rng)]++;
+    }
+    assertThat(wins[0]).isGreaterThan(wins[1]);
+    assertThat(wins[1]).isGreaterThan(wins[2]);
+  }
+
+  @Test
+  void rankWeightsShouldDecreaseLinearlyWithRank() {
+    double[] fitness = { 0.5, -3, 10, 2 };
+    double[] weights = new double[fitness.length];
+
+    Selection.rankWeights(fitness, 1.6, new int[fitness.length], weights);
+
+    assertThat(weights).containsExactly(new double[] { 0.8, 0.4, 1.6, 1.2 }, within(1e-9));
+  }
+
+  @Test
+  void selectionShouldNotAllocateOnAMillionIndividuals() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+        "Needs per thread allocation counters");
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    int n = 1_000_000;
+    var rng = new Random(41);
+    double[] fitness = rng.doubles(n).toArray();
+    int[] indices = new int[n];
+    double[] weights = new double[n];
+    var table = new AliasTable(n);
+    // The first round loads classes and the like
+    select(fitness, indices, weights, table, rng);
+
+    long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    select(fitness, indices, weights, table, rng);
+    long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+    assertThat(allocated).isZero();
+  }
+
+  private static void select(double[] fitness, int[] indices, double[] weights, AliasTable table,
+      Random rng) {
+    Selection.elite(fitness, fitness.length / 20, indices);
+    for (int i = 0; i < fitness.length; i++) {
+      Selection.tournament(fitness, 3, rng);
+    }
+    Selection.rankWeights(fitness, 1.5, indices, weights);
+    table.reset(weights, fitness.length);
+    for (int i = 0; i < fitness.length; i++) {
+      table.sample(rng);
+    }
+  }
+}
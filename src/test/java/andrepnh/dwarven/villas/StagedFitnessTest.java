@@ -0,0 +1,110 @@
+package andrepnh.dwarven.villas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import org.junit.jupiter.api.Test;
+
+class StagedFitnessTest {
+  private final Grid grid = new Grid(3, 3);
+  private final List<String> calls = new ArrayList<>();
+
+  @Test
+  void stagesShouldRunCheapestFirstAndStopAtTheFirstPrune() {
+    var fitness = new StagedFitness(exact(5), List.of(
+        stage("expensive", 0.5, 6), stage("cheap", 0, 4), stage("cheaper", 0, 10)));
+
+    assertThat(fitness.evaluate(grid, 4.5)).isEqualTo(Double.NEGATIVE_INFINITY);
+    assertThat(calls).containsExactly("cheap");
+  }
+
+  @Test
+  void gridsThatCanReachTheThresholdShouldGetTheExactFitness() {
+    var fitness = new StagedFitness(exact(5),
+        List.of(stage("cheap", 0, 8), stage("tighter", 0, 6)));
+
+    assertThat(fitness.evaluate(grid, 5)).isEqualTo(5);
+    assertThat(calls).containsExactly("cheap", "tighter", "exact");
+    assertThat(fitness.exactEvaluations()).isEqualTo(1);
+  }
+
+  @Test
+  void boundsShouldBeCombinedAcrossStages() {
+    var fitness = new StagedFitness(exact(1),
+        List.of(stage("loose", 0, 3), stage("tight", 0.1, 2)));
+
+    assertThat(fitness.evaluate(grid, 2.5)).isEqualTo(Double.NEGATIVE_INFINITY);
+    assertThat(fitness.stats())
+        .extracting(StagedFitness.StageStats::pruned)
+        .containsExactly(0L, 1L);
+  }
+
+  @Test
+  void prunedGridsShouldNeverOutscoreExactlyScoredOnes() {
+    var fitness = new StagedFitness(exact(1), List.of(stage("cheap", 0, 3)));
+    assertThat(fitness.evaluate(grid, 4)).isLessThan(fitness.evaluate(grid, 0));
+  }
+
+  @Test
+  void nothingShouldBePrunedWithoutAThreshold() {
+    var fitness = new StagedFitness(exact(1), List.of(stage("cheap", 0, -10)));
+
+    assertThat(fitness.evaluate(grid)).isEqualTo(1);
+    assertThat(calls).containsExactly("exact");
+  }
+
+  @Test
+  void statsShouldTrackPruneRatesPerStage() {
+    var fitness = new StagedFitness(exact(5),
+        List.of(stage("first", 0, 10), stage("second", 0, 3)));
+    fitness.evaluate(grid, 4);
+    fitness.evaluate(grid, 2);
+    fitness.evaluate(grid, 11);
+
+    assertThat(fitness.stats()).containsExactly(
+        new StagedFitness.StageStats("first", 3, 3, 1),
+        new StagedFitness.StageStats("second", 2, 2, 1));
+    assertThat(fitness.stats().get(1).pruneRate()).isEqualTo(0.5);
+  }
+
+  @Test
+  void stagesPruningLessThanTheirCostShouldBeMostlySkipped() {
+    var fitness = new StagedFitness(exact(5), List.of(stage("useless", 0.5, 100)));
+    for (int i = 0; i < 10_000; i++) {
+      fitness.evaluate(grid, 4);
+    }
+
+    var stats = fitness.stats().get(0);
+    assertThat(stats.reached()).isEqualTo(10_000);
+    assertThat(stats.evaluated()).isLessThan(500);
+  }
+
+  private ToDoubleFunction<Grid> exact(double value) {
+    return grid -> {
+      calls.add("exact");
+      return value;
+    };
+  }
+
+  private FitnessStage stage(String name, double cost, double bound) {
+    return new FitnessStage() {
+      @Override
+      public String name() {
+        return name;
+      }
+
+      @Override
+      public double cost() {
+        return cost;
+      }
+
+      @Override
+      public double bound(Grid grid) {
+        calls.add(name);
+        return bound;
+      }
+    };
+  }
+}